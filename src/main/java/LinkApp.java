@@ -1,15 +1,22 @@
 import models.Link;
 import models.User;
 import service.LinkService;
+import service.QuotaExceededException;
+import service.ShortCodeExhaustedException;
 import service.UserService;
 
 import java.awt.*;
+import java.io.*;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 public class LinkApp {
@@ -17,16 +24,68 @@ public class LinkApp {
     private final LinkService linkService;
     private final UserService userService;
     UUID userId;
+    String token;
 
     public LinkApp() {
-        linkService = new LinkService();
-        userService = new UserService();
+        this(new UserService());
+    }
+
+    LinkApp(UserService userService) {
+        this.userService = userService;
+        this.linkService = new LinkService(userService);
+    }
+
+    /**
+     * Периодическое вытеснение неактивных сессий в фоновом потоке;
+     * останавливается при выходе из run/runBatch
+     */
+    private ScheduledExecutorService startSessionSweep() {
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = config.AppConfig.getSessionEvictIntervalSeconds();
+        sweeper.scheduleAtFixedRate(userService::evictIdle, period, period, TimeUnit.SECONDS);
+        return sweeper;
     }
 
     public void run() {
-        User currentUser = userService.getCurrentUser();
+        ScheduledExecutorService sweeper = startSessionSweep();
+        try {
+            runMenu();
+        } finally {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Открытие новой сессии; по токену можно вернуться к ней командой 7
+     */
+    private void startSession() {
+        User currentUser = userService.register();
         this.userId = currentUser.getId();
+        this.token = currentUser.getToken();
         System.out.println("Ваш UUID: " + userId);
+        System.out.println("Токен сессии: " + token);
+    }
+
+    /**
+     * Пользователь определяется по токену сессии перед каждой командой;
+     * если сессия вытеснена за бездействие, открываем новую
+     */
+    private void ensureSession() {
+        Optional<User> user = userService.findByToken(token);
+        if (user.isPresent()) {
+            this.userId = user.get().getId();
+            return;
+        }
+        System.out.println("Сессия истекла, открыта новая.");
+        startSession();
+    }
+
+    private void runMenu() {
+        startSession();
 
         System.out.println("Добро пожаловать в сервис коротких ссылок!");
 
@@ -37,23 +96,30 @@ public class LinkApp {
 
             switch (command) {
                 case "1":
+                    ensureSession();
                     handleCreate();
                     break;
                 case "2":
+                    ensureSession();
                     handleList();
                     break;
                 case "3":
                     handleOpen();
                     break;
                 case "4":
+                    ensureSession();
                     handleEditParams();
                     break;
                 case "5":
+                    ensureSession();
                     handleDelete();
                     break;
                 case "6":
                     System.out.println("До свидания!");
                     return;
+                case "7":
+                    handleLogin();
+                    break;
                 case "help":
                     showHelp();
                     break;
@@ -74,9 +140,24 @@ public class LinkApp {
         System.out.println("4 - Редактировать параметры ссылки");
         System.out.println("5 - Удалить ссылку");
         System.out.println("6 - Выход из программы");
+        System.out.println("7 - Войти по токену сессии");
         System.out.println("help - Показать справку");
     }
 
+    private void handleLogin() {
+        System.out.print("Введите токен сессии: ");
+        String newToken = scanner.nextLine().trim();
+
+        Optional<User> user = userService.findByToken(newToken);
+        if (user.isEmpty()) {
+            System.out.println("Ошибка: сессия не найдена или истекла.");
+            return;
+        }
+        this.token = newToken;
+        this.userId = user.get().getId();
+        System.out.println("Вы вошли как " + userId);
+    }
+
     private void handleCreate() {
         System.out.print("Введите оригинальный URL: ");
         String url = scanner.nextLine().trim();
@@ -98,7 +179,13 @@ public class LinkApp {
 
         Duration ttl = Duration.ofHours(config.AppConfig.getTtlHours());
 
-        Link link = linkService.createLink(url, userId, maxClicks, ttl);
+        Link link;
+        try {
+            link = linkService.createLink(url, userId, maxClicks, ttl);
+        } catch (QuotaExceededException | ShortCodeExhaustedException e) {
+            System.out.println("Ошибка: " + e.getMessage());
+            return;
+        }
         System.out.println("Короткая ссылка создана: " + link.getShortUrl());
         System.out.println("Срок жизни: " + ttl.toHours() + " часа, лимит переходов: " + maxClicks);
     }
@@ -275,10 +362,44 @@ public class LinkApp {
         System.out.println();
         System.out.println("6 - Выход");
         System.out.println();
+        System.out.println("7 - Войти по токену сессии");
+        System.out.println("    • Переключение на другого пользователя по его токену");
+        System.out.println("    • Сессия вытесняется после долгого бездействия");
+        System.out.println();
         System.out.println("help - Показать данную справку");
     }
 
-    // Для запуска CLI
-    public static void main(String[] args) { new LinkApp().run();
+    /**
+     * Пакетный режим: команды из файла или stdin ("-"), результат в stdout.
+     * Пакет начинается с новой сессии; сменить ее можно командами register и login.
+     */
+    public void runBatch(Reader input, Writer output) throws IOException {
+        User currentUser = userService.register();
+        this.userId = currentUser.getId();
+        this.token = currentUser.getToken();
+
+        ScheduledExecutorService sweeper = startSessionSweep();
+        try {
+            LinkBatchRunner runner = new LinkBatchRunner(linkService, userService, token,
+                    config.AppConfig.getBatchSize(),
+                    Duration.ofMillis(config.AppConfig.getBatchExpiryIntervalMillis()));
+            runner.run(input, output);
+            output.flush();
+        } finally {
+            sweeper.shutdownNow();
+        }
+    }
+
+    // Для запуска CLI; с --batch [файл] — пакетный режим
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            InputStream in = args.length > 1 && !args[1].equals("-") ? new FileInputStream(args[1]) : System.in;
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+                new LinkApp().runBatch(reader, writer);
+            }
+            return;
+        }
+        new LinkApp().run();
     }
 }
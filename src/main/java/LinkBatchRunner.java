@@ -0,0 +1,412 @@
+import models.Link;
+import models.User;
+import service.LinkService;
+import service.QuotaExceededException;
+import service.ShortCodeExhaustedException;
+import service.UserService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Пакетный режим: команды читаются построчно из файла или stdin и выполняются пачками.
+ * <p>
+ * Формат команд (по одной в строке, пустые строки и строки с # пропускаются):
+ * <pre>
+ * create &lt;url&gt; &lt;лимит&gt; [ttl в часах]
+ * open &lt;короткая ссылка&gt;
+ * list
+ * edit clicks &lt;короткая ссылка&gt; &lt;лимит&gt;
+ * edit ttl &lt;короткая ссылка&gt; &lt;часы&gt;
+ * delete &lt;короткая ссылка&gt;
+ * register
+ * login &lt;токен сессии&gt;
+ * </pre>
+ * Пользователь определяется по токену текущей сессии перед каждой командой create/list/edit/delete;
+ * если сессия закрыта или вытеснена, команда получает {@code no_session}.
+ * register открывает новую сессию и переключается на нее, login переключается на существующую.
+ * Результат — строки через табуляцию: {@code <номер строки> OK|ERR <команда> <данные...>}.
+ * Для list после строки с количеством идут строки {@code <номер строки> LINK <короткая> <url> <переходы> <лимит> <просрочено>}.
+ */
+public class LinkBatchRunner {
+    private static final List<String[]> END = new ArrayList<>(); // маркер конца входа
+    private static final long MAX_TTL_HOURS = 24L * 365 * 100;    // защита от переполнения при расчете срока
+    private static final long PARSER_STOP_MILLIS = 1000;
+
+    private final LinkService linkService;
+    private final UserService userService;
+    private final int batchSize;
+    private final long expiryIntervalNanos;
+
+    private String token;  // токен текущей сессии (может быть null)
+    private UUID userId;   // пользователь текущей сессии, обновляется перед каждой командой
+    private long nextExpiry;
+
+    public LinkBatchRunner(LinkService linkService, UserService userService, String token,
+                           int batchSize, Duration expiryInterval) {
+        this.linkService = linkService;
+        this.userService = userService;
+        this.token = token;
+        this.batchSize = batchSize;
+        this.expiryIntervalNanos = expiryInterval.toNanos();
+    }
+
+    /**
+     * Разбор входа идет в отдельном потоке, выполнение — в текущем:
+     * пока выполняется одна пачка, следующая уже разбирается.
+     * LinkService используется только из текущего потока.
+     */
+    public void run(Reader input, Writer output) throws IOException {
+        BlockingQueue<List<String[]>> batches = new ArrayBlockingQueue<>(2);
+        Throwable[] parseError = new Throwable[1];
+
+        Thread parser = new Thread(() -> {
+            boolean interrupted = false;
+            try {
+                parse(new BufferedReader(input), batches);
+            } catch (InterruptedException e) {
+                // выполнение прервано, END уже никто не ждет
+                interrupted = true;
+            } catch (Throwable e) {
+                // ошибку передаем вызывающему; публикуется через очередь вместе с END
+                parseError[0] = e;
+            } finally {
+                if (!interrupted) {
+                    try {
+                        batches.put(END);
+                    } catch (InterruptedException ignored) {
+                        // выполнение уже прервано
+                    }
+                }
+            }
+        }, "batch-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        nextExpiry = System.nanoTime() + expiryIntervalNanos;
+        boolean completed = false;
+        try {
+            while (true) {
+                List<String[]> batch = batches.take();
+                if (batch == END) break;
+                for (String[] command : batch) {
+                    execute(command, output);
+                }
+                output.flush();
+                expireIfDue();
+            }
+            parser.join();
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            if (!completed) {
+                // Сбой выполнения или вывода: останавливаем разбор, чтобы поток не висел на put
+                stopParser(parser);
+            }
+        }
+
+        Throwable error = parseError[0];
+        if (error instanceof IOException) throw (IOException) error;
+        if (error instanceof RuntimeException) throw (RuntimeException) error;
+        if (error instanceof Error) throw (Error) error;
+        if (error != null) throw new IOException("Ошибка разбора команд", error);
+    }
+
+    /**
+     * Прерывание и ожидание потока разбора. Чтение из stdin прерыванием не снимается,
+     * поэтому ждем ограниченное время; поток daemon и не держит JVM.
+     */
+    private static void stopParser(Thread parser) {
+        parser.interrupt();
+        try {
+            parser.join(PARSER_STOP_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Потоковый разбор: в памяти держим не больше двух пачек.
+     * Неполная пачка отдается, как только во входе нет готовых строк,
+     * чтобы при работе через pipe ответ приходил сразу.
+     * Первый элемент команды — номер строки.
+     */
+    private void parse(BufferedReader reader, BlockingQueue<List<String[]>> batches)
+            throws IOException, InterruptedException {
+        List<String[]> batch = new ArrayList<>(batchSize);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String[] command = tokenize(lineNumber, line);
+            if (command == null) continue;
+            batch.add(command);
+            if (batch.size() == batchSize || !reader.ready()) {
+                batches.put(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.put(batch);
+        }
+    }
+
+    private static String[] tokenize(int lineNumber, String line) {
+        List<String> tokens = new ArrayList<>(5);
+        tokens.add(Integer.toString(lineNumber));
+        int i = 0;
+        int length = line.length();
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) i++;
+            if (i == length) break;
+            if (tokens.size() == 1 && line.charAt(i) == '#') return null;
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) i++;
+            tokens.add(line.substring(start, i));
+        }
+        return tokens.size() == 1 ? null : tokens.toArray(new String[0]);
+    }
+
+    /**
+     * Автоудаление по расписанию, а не после каждой команды
+     */
+    private void expireIfDue() {
+        long now = System.nanoTime();
+        if (now - nextExpiry >= 0) {
+            linkService.deleteExpired();
+            nextExpiry = now + expiryIntervalNanos;
+        }
+    }
+
+    private void execute(String[] command, Writer out) throws IOException {
+        String line = command[0];
+        String name = command[1];
+        switch (name) {
+            case "create":
+            case "list":
+            case "edit":
+            case "delete":
+                if (!resolveSession()) {
+                    write(out, line, "ERR", name, "no_session");
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        switch (name) {
+            case "register":
+                handleRegister(command, out);
+                break;
+            case "login":
+                handleLogin(command, out);
+                break;
+            case "create":
+                handleCreate(command, out);
+                break;
+            case "open":
+                handleOpen(command, out);
+                break;
+            case "list":
+                handleList(command, out);
+                break;
+            case "edit":
+                handleEdit(command, out);
+                break;
+            case "delete":
+                handleDelete(command, out);
+                break;
+            default:
+                write(out, line, "ERR", name, "unknown_command");
+        }
+    }
+
+    /**
+     * Поиск пользователя текущей сессии по токену
+     */
+    private boolean resolveSession() {
+        Optional<User> user = token == null ? Optional.empty() : userService.findByToken(token);
+        userId = user.map(User::getId).orElse(null);
+        return userId != null;
+    }
+
+    private void handleRegister(String[] command, Writer out) throws IOException {
+        if (command.length != 2) {
+            write(out, command[0], "ERR", "register", "bad_arguments");
+            return;
+        }
+        User user;
+        try {
+            user = userService.register();
+        } catch (IllegalStateException e) {
+            write(out, command[0], "ERR", "register", "too_many_sessions");
+            return;
+        }
+        token = user.getToken();
+        write(out, command[0], "OK", "register", user.getId().toString(), token);
+    }
+
+    private void handleLogin(String[] command, Writer out) throws IOException {
+        if (command.length != 3) {
+            write(out, command[0], "ERR", "login", "bad_arguments");
+            return;
+        }
+        Optional<User> user = userService.findByToken(command[2]);
+        if (user.isEmpty()) {
+            write(out, command[0], "ERR", "login", "no_session");
+            return;
+        }
+        token = command[2];
+        write(out, command[0], "OK", "login", user.get().getId().toString());
+    }
+
+    private void handleCreate(String[] command, Writer out) throws IOException {
+        if (command.length != 4 && command.length != 5) {
+            write(out, command[0], "ERR", "create", "bad_arguments");
+            return;
+        }
+        String url = command[2];
+        if (!isValidUrl(url)) {
+            write(out, command[0], "ERR", "create", "invalid_url");
+            return;
+        }
+        long maxClicks = parsePositive(command[3]);
+        long hours = command.length == 5 ? parsePositive(command[4]) : config.AppConfig.getTtlHours();
+        if (maxClicks <= 0 || maxClicks > Integer.MAX_VALUE || hours <= 0 || hours > MAX_TTL_HOURS) {
+            write(out, command[0], "ERR", "create", "invalid_number");
+            return;
+        }
+
+        Link link;
+        try {
+            link = linkService.createLink(url, userId, (int) maxClicks, Duration.ofHours(hours));
+        } catch (QuotaExceededException e) {
+            write(out, command[0], "ERR", "create", "quota_exceeded");
+            return;
+        } catch (ShortCodeExhaustedException e) {
+            write(out, command[0], "ERR", "create", "generation_failed");
+            return;
+        }
+        write(out, command[0], "OK", "create", link.getShortUrl());
+    }
+
+    private void handleOpen(String[] command, Writer out) throws IOException {
+        if (command.length != 3) {
+            write(out, command[0], "ERR", "open", "bad_arguments");
+            return;
+        }
+        String shortUrl = command[2];
+        // Ищем до getLink: истекшую ссылку getLink сразу удаляет
+        Link link = linkService.findByShort(shortUrl);
+        Optional<Link> optLink = linkService.getLink(shortUrl);
+        if (optLink.isPresent()) {
+            write(out, command[0], "OK", "open", optLink.get().getOriginalUrl());
+            return;
+        }
+
+        String reason;
+        if (link == null) {
+            reason = "not_found";
+        } else if (link.isExpired()) {
+            reason = "expired";
+        } else if (link.isLimitReached()) {
+            reason = "limit_reached";
+        } else {
+            reason = "unavailable";
+        }
+        write(out, command[0], "ERR", "open", reason);
+    }
+
+    private void handleList(String[] command, Writer out) throws IOException {
+        if (command.length != 2) {
+            write(out, command[0], "ERR", "list", "bad_arguments");
+            return;
+        }
+        List<Link> links = linkService.findByUser(userId);
+        write(out, command[0], "OK", "list", Integer.toString(links.size()));
+        for (Link link : links) {
+            write(out, command[0], "LINK",
+                    link.getShortUrl(),
+                    link.getOriginalUrl(),
+                    Integer.toString(link.getUsedClicks()),
+                    Integer.toString(link.getMaxClicks()),
+                    link.isExpired() ? "yes" : "no");
+        }
+    }
+
+    private void handleEdit(String[] command, Writer out) throws IOException {
+        if (command.length != 5 || !(command[2].equals("clicks") || command[2].equals("ttl"))) {
+            write(out, command[0], "ERR", "edit", "bad_arguments");
+            return;
+        }
+        String shortUrl = command[3];
+        long value = parsePositive(command[4]);
+        long max = command[2].equals("clicks") ? Integer.MAX_VALUE : MAX_TTL_HOURS;
+        if (value <= 0 || value > max) {
+            write(out, command[0], "ERR", "edit", "invalid_number");
+            return;
+        }
+
+        boolean ok = command[2].equals("clicks")
+                ? linkService.updateMaxClicks(shortUrl, (int) value, userId)
+                : linkService.updateTtl(shortUrl, Duration.ofHours(value), userId);
+        if (ok) write(out, command[0], "OK", "edit", shortUrl);
+        else write(out, command[0], "ERR", "edit", "not_found_or_forbidden");
+    }
+
+    private void handleDelete(String[] command, Writer out) throws IOException {
+        if (command.length != 3) {
+            write(out, command[0], "ERR", "delete", "bad_arguments");
+            return;
+        }
+        String shortUrl = command[2];
+        Link link = linkService.findByShort(shortUrl);
+        if (link == null || !link.getOwner().equals(userId)) {
+            write(out, command[0], "ERR", "delete", "not_found_or_forbidden");
+            return;
+        }
+        linkService.delete(shortUrl);
+        write(out, command[0], "OK", "delete", shortUrl);
+    }
+
+    private static boolean isValidUrl(String url) {
+        try {
+            new java.net.URL(url);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Положительное число или -1
+     */
+    private static long parsePositive(String value) {
+        try {
+            long result = Long.parseLong(value);
+            return result > 0 ? result : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void write(Writer out, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write('\t');
+            out.write(fields[i]);
+        }
+        out.write('\n');
+    }
+}
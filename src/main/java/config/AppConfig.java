@@ -29,4 +29,28 @@ public class AppConfig {
     public static long getTtlHours() {
         return Long.parseLong(props.getProperty("default.ttl.hours"));
     }
+
+    public static int getMaxSessions() {
+        return Integer.parseInt(props.getProperty("session.max.active"));
+    }
+
+    public static long getSessionIdleMinutes() {
+        return Long.parseLong(props.getProperty("session.idle.minutes"));
+    }
+
+    public static long getSessionEvictIntervalSeconds() {
+        return Long.parseLong(props.getProperty("session.evict.interval.seconds"));
+    }
+
+    public static int getUserLinkQuota() {
+        return Integer.parseInt(props.getProperty("user.link.quota"));
+    }
+
+    public static int getBatchSize() {
+        return Integer.parseInt(props.getProperty("batch.size"));
+    }
+
+    public static long getBatchExpiryIntervalMillis() {
+        return Long.parseLong(props.getProperty("batch.expiry.interval.millis"));
+    }
 }
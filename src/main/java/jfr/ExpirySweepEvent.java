@@ -0,0 +1,23 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Проход автоудаления истекших ссылок (LinkService.deleteExpired)
+ */
+@Name("shortlink.ExpirySweep")
+@Label("Expiry Sweep")
+@Category({"Short Link", "Maintenance"})
+@Description("Удаление истекших ссылок из хранилища; длительность события — время паузы")
+@StackTrace(false)
+public class ExpirySweepEvent extends jdk.jfr.Event {
+    @Label("Links Scanned")
+    public int scanned;
+
+    @Label("Links Removed")
+    public int removed;
+}
@@ -0,0 +1,32 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Создание короткой ссылки (LinkService.createLink)
+ */
+@Name("shortlink.LinkCreate")
+@Label("Link Create")
+@Category({"Short Link", "Links"})
+@Description("Создание короткой ссылки, включая генерацию кода в UrlShortenerService")
+@StackTrace(false)
+@Threshold("1 ms")
+public class LinkCreateEvent extends jdk.jfr.Event {
+    @Label("Short URL")
+    public String shortUrl;
+
+    @Label("Generation Time")
+    @Description("Суммарное время вызовов UrlShortenerService.generateShortUrl по всем попыткам")
+    @Timespan(Timespan.NANOSECONDS)
+    public long generationTime;
+
+    @Label("Collisions")
+    @Description("Сколько раз сгенерированный код уже был занят")
+    public int collisions;
+}
@@ -0,0 +1,31 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Переход по короткой ссылке (LinkService.getLink)
+ */
+@Name("shortlink.LinkResolve")
+@Label("Link Resolve")
+@Category({"Short Link", "Links"})
+@Description("Получение ссылки по короткому URL с проверкой TTL и лимита переходов")
+@StackTrace(false)
+@Threshold("1 ms")
+public class LinkResolveEvent extends jdk.jfr.Event {
+    public static final String OK = "OK";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String EXPIRED = "EXPIRED";
+    public static final String LIMIT_REACHED = "LIMIT_REACHED";
+
+    @Label("Short URL")
+    public String shortUrl;
+
+    @Label("Outcome")
+    @Description("OK, NOT_FOUND, EXPIRED или LIMIT_REACHED")
+    public String outcome;
+}
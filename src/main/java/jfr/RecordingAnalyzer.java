@@ -0,0 +1,140 @@
+package jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Сводка по записи JFR: таблица задержек по каждой операции сервиса ссылок
+ */
+public class RecordingAnalyzer {
+    private static final String PREFIX = "shortlink.";
+
+    // операция -> длительности событий в наносекундах
+    private final Map<String, Samples> durations = new TreeMap<>();
+    private long collisions;
+    private long sweepScanned;
+    private long sweepRemoved;
+
+    /**
+     * Читаем все события сервиса из файла записи
+     */
+    public void load(Path recording) throws IOException {
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String name = event.getEventType().getName();
+                if (name.startsWith(PREFIX)) {
+                    add(name.substring(PREFIX.length()), event);
+                }
+            }
+        }
+    }
+
+    private void add(String type, RecordedEvent event) {
+        String operation = type;
+        switch (type) {
+            case "LinkResolve":
+                // Разбиваем переходы по результату: LinkResolve/OK, LinkResolve/EXPIRED, ...
+                operation = type + "/" + event.getString("outcome");
+                break;
+            case "LinkCreate":
+                collisions += event.getInt("collisions");
+                durations.computeIfAbsent("LinkCreate/generation", k -> new Samples())
+                        .add(event.getDuration("generationTime").toNanos());
+                break;
+            case "ExpirySweep":
+                sweepScanned += event.getInt("scanned");
+                sweepRemoved += event.getInt("removed");
+                break;
+            default:
+                break;
+        }
+        durations.computeIfAbsent(operation, k -> new Samples()).add(event.getDuration().toNanos());
+    }
+
+    /**
+     * Количество событий по операции
+     */
+    public int count(String operation) {
+        Samples samples = durations.get(operation);
+        return samples == null ? 0 : samples.size;
+    }
+
+    public long getCollisions() {
+        return collisions;
+    }
+
+    public long getSweepScanned() {
+        return sweepScanned;
+    }
+
+    public long getSweepRemoved() {
+        return sweepRemoved;
+    }
+
+    /**
+     * Печать таблицы задержек (в микросекундах)
+     */
+    public void print(PrintStream out) {
+        out.printf("%-28s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "avg us", "p50 us", "p95 us", "p99 us", "max us");
+        for (Map.Entry<String, Samples> entry : durations.entrySet()) {
+            Samples samples = entry.getValue();
+            samples.sort();
+            out.printf("%-28s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    entry.getKey(),
+                    samples.size,
+                    samples.sum / (double) samples.size / 1000.0,
+                    samples.percentile(50) / 1000.0,
+                    samples.percentile(95) / 1000.0,
+                    samples.percentile(99) / 1000.0,
+                    samples.values[samples.size - 1] / 1000.0);
+        }
+        out.println();
+        out.println("Коллизий при создании: " + collisions);
+        out.println("Автоудаление: просмотрено " + sweepScanned + ", удалено " + sweepRemoved);
+    }
+
+    /**
+     * Длительности в растущем массиве long без упаковки: 8 байт на событие,
+     * сортировка на месте без копирования
+     */
+    private static final class Samples {
+        private long[] values = new long[256];
+        private int size;
+        private long sum;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            sum += value;
+        }
+
+        void sort() {
+            Arrays.sort(values, 0, size);
+        }
+
+        long percentile(int p) {
+            int index = (int) Math.ceil(p / 100.0 * size) - 1;
+            return values[Math.max(0, index)];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Использование: RecordingAnalyzer <файл.jfr>");
+            return;
+        }
+        RecordingAnalyzer analyzer = new RecordingAnalyzer();
+        analyzer.load(Paths.get(args[0]));
+        analyzer.print(System.out);
+    }
+}
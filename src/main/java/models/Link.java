@@ -5,18 +5,22 @@ import lombok.Data;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 @Data
 public class Link {
+    private static final AtomicIntegerFieldUpdater<Link> USED_CLICKS =
+            AtomicIntegerFieldUpdater.newUpdater(Link.class, "usedClicks");
+
     private final String originalUrl; // исходный URL
     private final String shortUrl;    // короткая ссылка
     private final UUID owner;         // UUID владельца
 
-    private int maxClicks;      // лимит переходов
-    private int usedClicks = 0;       // сколько раз уже переходили
+    private volatile int maxClicks;      // лимит переходов
+    private volatile int usedClicks = 0;       // сколько раз уже переходили
 
     private final LocalDateTime createdAt; // время создания
-    private Duration ttl;            // время жизни
+    private volatile Duration ttl;            // время жизни
 
     public Link(String originalUrl, String shortUrl, UUID owner, int maxClicks, Duration ttl) {
         this.originalUrl = originalUrl;
@@ -28,7 +32,18 @@ public class Link {
     }
 
     public void incrementClicks() {
-        usedClicks++;
+        USED_CLICKS.incrementAndGet(this);
+    }
+
+    /**
+     * Засчитываем переход, если лимит не исчерпан; проверка и увеличение атомарны
+     */
+    public boolean tryIncrementClicks() {
+        while (true) {
+            int current = usedClicks;
+            if (current >= maxClicks) return false;
+            if (USED_CLICKS.compareAndSet(this, current, current + 1)) return true;
+        }
     }
 
     public boolean isExpired() {
@@ -1,14 +1,77 @@
 package models;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 @Data
+@EqualsAndHashCode(of = "id")
 public class User {
+    // Атомарные счетчики через field updater, чтобы не держать отдельные Atomic* на каждого пользователя
+    private static final AtomicIntegerFieldUpdater<User> LINK_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(User.class, "linkCount");
+    private static final AtomicLongFieldUpdater<User> LAST_ACTIVITY =
+            AtomicLongFieldUpdater.newUpdater(User.class, "lastActivity");
+
     private final UUID id;
+    @ToString.Exclude
+    private final String token;       // токен сессии (null у владельца без сессии)
+    private final int linkQuota;      // максимум ссылок у пользователя
+
+    @Setter(AccessLevel.NONE)
+    private volatile int linkCount;     // сколько ссылок сейчас создано
+    @Setter(AccessLevel.NONE)
+    private volatile long lastActivity; // время последнего обращения (мс)
 
-    public User(UUID id) {
+    public User(UUID id, String token, int linkQuota) {
         this.id = id;
+        this.token = token;
+        this.linkQuota = linkQuota;
+        this.lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Занимаем место под новую ссылку, если квота не исчерпана
+     */
+    public boolean tryAcquireLink() {
+        while (true) {
+            int current = linkCount;
+            if (current >= linkQuota) return false;
+            if (LINK_COUNT.compareAndSet(this, current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Освобождаем место после удаления ссылки
+     * Освобождение без захвата — ошибка учета, а не допустимая ситуация
+     */
+    public void releaseLink() {
+        while (true) {
+            int current = linkCount;
+            if (current <= 0) {
+                throw new IllegalStateException("Освобождение квоты без захвата");
+            }
+            if (LINK_COUNT.compareAndSet(this, current, current - 1)) return;
+        }
+    }
+
+    /**
+     * Отмечаем активность; пишем не чаще раза в granularityMillis, чтобы не гонять кэш-линию между потоками
+     */
+    public void touch(long now, long granularityMillis) {
+        long last = lastActivity;
+        if (now - last >= granularityMillis) {
+            LAST_ACTIVITY.compareAndSet(this, last, now);
+        }
+    }
+
+    public boolean isIdle(long now, long idleTimeoutMillis) {
+        return now - lastActivity > idleTimeoutMillis;
     }
 }
@@ -1,35 +1,121 @@
 package service;
 
+import jfr.ExpirySweepEvent;
+import jfr.LinkCreateEvent;
+import jfr.LinkResolveEvent;
 import models.Link;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class LinkService {
-    private final Map<String, Link> storage = new HashMap<>(); // shortUrl -> Link
+    private static final int MAX_COLLISION_RETRIES = 10;
+
+    private final Map<String, Link> storage = new ConcurrentHashMap<>(); // shortUrl -> Link
     private final UrlShortenerService urlShortener;
+    private final UserService userService;
 
     public LinkService() {
-        urlShortener = new UrlShortenerService();
+        this(new UserService());
+    }
+
+    public LinkService(UserService userService) {
+        this(userService, new UrlShortenerService());
+    }
+
+    public LinkService(UserService userService, UrlShortenerService urlShortener) {
+        this.urlShortener = urlShortener;
+        this.userService = userService;
     }
 
     /**
      * Создание новой короткой ссылки
+     * Бросает QuotaExceededException, если квота ссылок пользователя исчерпана,
+     * и ShortCodeExhaustedException, если все попытки генерации дали занятый код
      */
     public Link createLink(String originalUrl, UUID owner, int maxClicks, Duration ttl) {
-        // Генерация уникальной короткой ссылки
-        String shortUrl = urlShortener.generateShortUrl(originalUrl, owner);
+        // Без свободного места в квоте ссылку можно только пересоздать на том же коде
+        boolean reserved = userService.acquireLink(owner);
+
+        LinkCreateEvent event = new LinkCreateEvent();
+        event.begin();
+
+        // Генерация уникальной короткой ссылки; время генерации (сумма по попыткам)
+        // замеряем только при включенной записи
+        boolean timed = event.isEnabled();
+        long generationTime = 0;
+        int collisions = 0;
+        Link link;
+        while (true) {
+            long generationStart = timed ? System.nanoTime() : 0;
+            String shortUrl = collisions == 0
+                    ? urlShortener.generateShortUrl(originalUrl, owner)
+                    : urlShortener.generateShortUrl(originalUrl, owner, collisions);
+            if (timed) {
+                generationTime += System.nanoTime() - generationStart;
+            }
+            link = new Link(originalUrl, shortUrl, owner, maxClicks, ttl);
+            Link[] replaced = new Link[1];
+            Link candidate = link;
+            // Проверка занятости и вставка за одну атомарную операцию
+            Link stored = storage.compute(shortUrl, (key, existing) -> {
+                if (existing != null && !isSameLink(existing, originalUrl, owner)) {
+                    return existing;
+                }
+                if (existing == null && !reserved) {
+                    return null;
+                }
+                replaced[0] = existing;
+                return candidate;
+            });
+            if (stored == candidate) {
+                if (replaced[0] != null && reserved) {
+                    // Та же ссылка того же владельца пересоздана, место в квоте не прибавилось
+                    userService.releaseLink(owner);
+                }
+                break;
+            }
+            if (stored == null) {
+                throw new QuotaExceededException("Превышена квота ссылок пользователя");
+            }
+            if (++collisions > MAX_COLLISION_RETRIES) {
+                if (reserved) {
+                    userService.releaseLink(owner);
+                }
+                throw new ShortCodeExhaustedException("Не удалось подобрать свободную короткую ссылку");
+            }
+        }
 
-        Link link = new Link(originalUrl, shortUrl, owner, maxClicks, ttl);
-        save(link);
+        event.end();
+        if (event.shouldCommit()) {
+            event.shortUrl = link.getShortUrl();
+            event.generationTime = generationTime;
+            event.collisions = collisions;
+            event.commit();
+        }
         return link;
     }
 
     /**
-     * Сохраняем ссылку
+     * Под кодом уже лежит ссылка на тот же URL того же владельца
+     */
+    private static boolean isSameLink(Link existing, String originalUrl, UUID owner) {
+        return existing.getOriginalUrl().equals(originalUrl) && existing.getOwner().equals(owner);
+    }
+
+    /**
+     * Сохраняем ссылку с учетом квоты владельца
+     * Бросает QuotaExceededException, если квота исчерпана
      */
     public void save(Link link) {
-        storage.put(link.getShortUrl(), link);
+        if (!userService.acquireLink(link.getOwner())) {
+            throw new QuotaExceededException("Превышена квота ссылок пользователя");
+        }
+        Link previous = storage.put(link.getShortUrl(), link);
+        if (previous != null) {
+            userService.releaseLink(previous.getOwner());
+        }
     }
 
     /**
@@ -37,22 +123,38 @@ public class LinkService {
      * Проверяем TTL и лимит переходов
      */
     public Optional<Link> getLink(String shortUrl) {
+        LinkResolveEvent event = new LinkResolveEvent();
+        event.begin();
+        Optional<Link> result = resolve(shortUrl, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.shortUrl = shortUrl;
+            event.commit();
+        }
+        return result;
+    }
+
+    private Optional<Link> resolve(String shortUrl, LinkResolveEvent event) {
         Link link = storage.get(shortUrl);
-        if (link == null) return Optional.empty();
+        if (link == null) {
+            event.outcome = LinkResolveEvent.NOT_FOUND;
+            return Optional.empty();
+        }
 
         // Проверяем TTL
         if (link.isExpired()) {
-            delete(shortUrl);
+            remove(link);
+            event.outcome = LinkResolveEvent.EXPIRED;
             return Optional.empty();
         }
 
-        // Проверяем лимит переходов
-        if (link.isLimitReached()) {
+        // Проверяем лимит переходов и увеличиваем счетчик одной атомарной операцией
+        if (!link.tryIncrementClicks()) {
+            event.outcome = LinkResolveEvent.LIMIT_REACHED;
             return Optional.empty();
         }
 
-        // Увеличиваем счетчик переходов
-        link.incrementClicks();
+        event.outcome = LinkResolveEvent.OK;
         return Optional.of(link);
     }
 
@@ -107,13 +209,41 @@ public class LinkService {
      * Удаление ссылки
      */
     public void delete(String shortUrl) {
-        storage.remove(shortUrl);
+        Link removed = storage.remove(shortUrl);
+        if (removed != null) {
+            userService.releaseLink(removed.getOwner());
+        }
+    }
+
+    /**
+     * Удаление именно этой ссылки; квота освобождается, только если удалили мы
+     */
+    private boolean remove(Link link) {
+        if (storage.remove(link.getShortUrl(), link)) {
+            userService.releaseLink(link.getOwner());
+            return true;
+        }
+        return false;
     }
 
     /**
      * Автоудаление всех истекших ссылок
      */
     public void deleteExpired() {
-        storage.values().removeIf(Link::isExpired);
+        ExpirySweepEvent event = new ExpirySweepEvent();
+        event.begin();
+        int scanned = storage.size();
+        int removed = 0;
+        for (Link link : storage.values()) {
+            if (link.isExpired() && remove(link)) {
+                removed++;
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.scanned = scanned;
+            event.removed = removed;
+            event.commit();
+        }
     }
 }
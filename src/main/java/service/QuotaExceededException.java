@@ -0,0 +1,10 @@
+package service;
+
+/**
+ * Квота ссылок владельца исчерпана
+ */
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package service;
+
+/**
+ * Все попытки генерации дали уже занятый короткий код
+ */
+public class ShortCodeExhaustedException extends RuntimeException {
+    public ShortCodeExhaustedException(String message) {
+        super(message);
+    }
+}
@@ -15,8 +15,18 @@ public class UrlShortenerService {
      * Генерация короткой ссылки через SHA-256 + Base62
      */
     public String generateShortUrl(String originalUrl, UUID userId) {
+        return generateShortUrl(originalUrl, userId, 0);
+    }
+
+    /**
+     * Повторная генерация при коллизии: номер попытки добавляется к входу хеша
+     */
+    public String generateShortUrl(String originalUrl, UUID userId, int attempt) {
         try {
             String input = originalUrl + userId.toString();
+            if (attempt > 0) {
+                input += "#" + attempt;
+            }
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
 
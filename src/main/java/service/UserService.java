@@ -1,16 +1,193 @@
 package service;
 
 import models.User;
+import utils.Base62Encoder;
 
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class UserService {
-    private User currentUser;
+    private static final int TOKEN_BYTES = 24;
+    private static final long MAX_TOUCH_GRANULARITY_MILLIS = 1000;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 10_000;
 
-    public User getCurrentUser() {
-        if (currentUser == null) {
-            currentUser = new User(UUID.randomUUID());
+    private final ConcurrentHashMap<String, User> byToken = new ConcurrentHashMap<>(); // token -> User (сессии)
+    // id -> User; запись живет, пока есть сессия или ссылки, чтобы счетчик не терялся при вытеснении
+    private final ConcurrentHashMap<UUID, User> byId = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    private final int maxSessions;
+    private final long idleTimeoutMillis;
+    private final int linkQuota;
+    private final long touchGranularityMillis;
+    private final long sweepIntervalMillis;
+
+    public UserService() {
+        this(config.AppConfig.getMaxSessions(),
+                Duration.ofMinutes(config.AppConfig.getSessionIdleMinutes()),
+                config.AppConfig.getUserLinkQuota());
+    }
+
+    public UserService(int maxSessions, Duration idleTimeout, int linkQuota) {
+        this.maxSessions = maxSessions;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.linkQuota = linkQuota;
+        this.touchGranularityMillis = Math.min(MAX_TOUCH_GRANULARITY_MILLIS, idleTimeoutMillis / 4);
+        this.sweepIntervalMillis = Math.min(MAX_SWEEP_INTERVAL_MILLIS, idleTimeoutMillis / 4);
+    }
+
+    /**
+     * Регистрация нового пользователя и открытие сессии.
+     * При заполненном реестре вытесняем неактивные сессии, но не чаще раза в sweepIntervalMillis,
+     * иначе сразу отказываем.
+     * Под конкурентной регистрацией лимит может быть превышен не более чем на число потоков.
+     */
+    public User register() {
+        if (byToken.size() >= maxSessions) {
+            evictIdleIfDue();
+            if (byToken.size() >= maxSessions) {
+                throw new IllegalStateException("Достигнут лимит активных сессий");
+            }
         }
-        return currentUser;
+
+        User user;
+        do {
+            user = new User(UUID.randomUUID(), newToken(), linkQuota);
+        } while (byToken.putIfAbsent(user.getToken(), user) != null);
+        byId.put(user.getId(), user);
+        return user;
+    }
+
+    /**
+     * Поиск пользователя по токену сессии
+     */
+    public Optional<User> findByToken(String token) {
+        User user = byToken.get(token);
+        return Optional.ofNullable(active(user));
+    }
+
+    /**
+     * Поиск пользователя с активной сессией по UUID
+     */
+    public Optional<User> findById(UUID id) {
+        User user = byId.get(id);
+        if (user == null || !hasSession(user)) return Optional.empty();
+        return Optional.ofNullable(active(user));
+    }
+
+    private User active(User user) {
+        if (user == null) return null;
+        long now = System.currentTimeMillis();
+        if (user.isIdle(now, idleTimeoutMillis)) {
+            remove(user);
+            return null;
+        }
+        user.touch(now, touchGranularityMillis);
+        return user;
+    }
+
+    /**
+     * Учет новой ссылки владельца с проверкой квоты.
+     * Квота считается по владельцу, а не по сессии: после вытеснения сессии
+     * или для владельца без сессии счетчик продолжает действовать.
+     */
+    public boolean acquireLink(UUID owner) {
+        boolean[] acquired = new boolean[1];
+        byId.compute(owner, (id, user) -> {
+            if (user == null) {
+                user = new User(id, null, linkQuota);
+            }
+            user.touch(System.currentTimeMillis(), touchGranularityMillis);
+            acquired[0] = user.tryAcquireLink();
+            return dropIfUnused(user);
+        });
+        return acquired[0];
+    }
+
+    /**
+     * Учет удаленной ссылки владельца
+     * Запись владельца живет, пока у него есть ссылки, поэтому ее отсутствие — ошибка учета
+     */
+    public void releaseLink(UUID owner) {
+        byId.compute(owner, (id, user) -> {
+            if (user == null) {
+                throw new IllegalStateException("Освобождение квоты без захвата");
+            }
+            user.releaseLink();
+            return dropIfUnused(user);
+        });
+    }
+
+    /**
+     * Закрытие сессии
+     */
+    public void logout(String token) {
+        User user = byToken.get(token);
+        if (user != null) {
+            remove(user);
+        }
+    }
+
+    /**
+     * Полное вытеснение неактивных сессий, возвращает число удаленных.
+     * Рассчитано на вызов по расписанию, см. LinkApp.
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        lastSweep.set(now);
+        int removed = 0;
+        for (User user : byToken.values()) {
+            if (user.isIdle(now, idleTimeoutMillis) && remove(user)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Вытеснение, если с прошлого прохода прошло не меньше sweepIntervalMillis;
+     * проход выполняет только один поток
+     */
+    private void evictIdleIfDue() {
+        long now = System.currentTimeMillis();
+        long last = lastSweep.get();
+        if (now - last >= sweepIntervalMillis && lastSweep.compareAndSet(last, now)) {
+            evictIdle();
+        }
+    }
+
+    /**
+     * Количество активных сессий
+     */
+    public int size() {
+        return byToken.size();
+    }
+
+    private boolean hasSession(User user) {
+        return user.getToken() != null && byToken.get(user.getToken()) == user;
+    }
+
+    /**
+     * Запись без сессии и без ссылок больше не нужна
+     */
+    private User dropIfUnused(User user) {
+        return user.getLinkCount() == 0 && !hasSession(user) ? null : user;
+    }
+
+    private boolean remove(User user) {
+        if (!byToken.remove(user.getToken(), user)) return false;
+        byId.computeIfPresent(user.getId(), (id, existing) -> dropIfUnused(existing));
+        return true;
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base62Encoder.encode(bytes);
     }
 }
@@ -0,0 +1,124 @@
+import jdk.jfr.Recording;
+import jfr.RecordingAnalyzer;
+import models.Link;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.LinkService;
+import service.ShortCodeExhaustedException;
+import service.UrlShortenerService;
+import service.UserService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrEventsTest {
+    private LinkService linkService;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        linkService = new LinkService();
+        userId = UUID.randomUUID();
+    }
+
+    private Recording startRecording() {
+        Recording recording = new Recording();
+        recording.enable("shortlink.LinkResolve").withThreshold(Duration.ZERO);
+        recording.enable("shortlink.LinkCreate").withThreshold(Duration.ZERO);
+        recording.enable("shortlink.ExpirySweep");
+        recording.start();
+        return recording;
+    }
+
+    private RecordingAnalyzer analyze(Recording recording) throws Exception {
+        recording.stop();
+        Path file = Files.createTempFile("shortlink", ".jfr");
+        try {
+            recording.dump(file);
+            RecordingAnalyzer analyzer = new RecordingAnalyzer();
+            analyzer.load(file);
+            return analyzer;
+        } finally {
+            recording.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // События создания и перехода с разбивкой по результату
+    @Test
+    void testCreateAndResolveEvents() throws Exception {
+        Recording recording = startRecording();
+        Link link = linkService.createLink("https://example.com", userId, 1, Duration.ofHours(24));
+        linkService.getLink(link.getShortUrl());
+        linkService.getLink(link.getShortUrl());
+        linkService.getLink("nonexistent");
+        RecordingAnalyzer analyzer = analyze(recording);
+
+        assertEquals(1, analyzer.count("LinkCreate"));
+        assertEquals(1, analyzer.count("LinkCreate/generation"));
+        assertEquals(1, analyzer.count("LinkResolve/OK"));
+        assertEquals(1, analyzer.count("LinkResolve/LIMIT_REACHED"));
+        assertEquals(1, analyzer.count("LinkResolve/NOT_FOUND"));
+    }
+
+    // Событие автоудаления со счетчиками просмотренных и удаленных ссылок
+    @Test
+    void testExpirySweepEvent() throws Exception {
+        linkService.createLink("https://a.com", userId, 5, Duration.ofMillis(100));
+        linkService.createLink("https://b.com", userId, 5, Duration.ofMillis(100));
+        linkService.createLink("https://c.com", userId, 5, Duration.ofHours(24));
+        Thread.sleep(150);
+        Recording recording = startRecording();
+        linkService.deleteExpired();
+        RecordingAnalyzer analyzer = analyze(recording);
+
+        assertEquals(1, analyzer.count("ExpirySweep"));
+        assertEquals(3, analyzer.getSweepScanned());
+        assertEquals(2, analyzer.getSweepRemoved());
+    }
+
+    // Коллизия кода: повторная генерация с номером попытки
+    @Test
+    void testCollisionRetries() throws Exception {
+        // Первые две попытки всегда дают один и тот же код
+        UrlShortenerService shortener = new UrlShortenerService() {
+            @Override
+            public String generateShortUrl(String originalUrl, UUID userId, int attempt) {
+                return attempt < 2 ? "fixed" : "fixed" + attempt;
+            }
+        };
+        LinkService service = new LinkService(new UserService(), shortener);
+
+        Recording recording = startRecording();
+        Link first = service.createLink("https://a.com", userId, 5, Duration.ofHours(24));
+        Link second = service.createLink("https://b.com", userId, 5, Duration.ofHours(24));
+        Link again = service.createLink("https://a.com", userId, 5, Duration.ofHours(24));
+        RecordingAnalyzer analyzer = analyze(recording);
+
+        assertEquals("fixed", first.getShortUrl());
+        assertEquals("fixed2", second.getShortUrl());
+        assertEquals("fixed", again.getShortUrl());
+        assertEquals("https://b.com", service.findByShort("fixed2").getOriginalUrl());
+        assertEquals(2, analyzer.getCollisions());
+    }
+
+    // Все попытки дали занятый код
+    @Test
+    void testCollisionRetriesExhausted() {
+        UrlShortenerService shortener = new UrlShortenerService() {
+            @Override
+            public String generateShortUrl(String originalUrl, UUID userId, int attempt) {
+                return "fixed";
+            }
+        };
+        LinkService service = new LinkService(new UserService(), shortener);
+        service.createLink("https://a.com", userId, 5, Duration.ofHours(24));
+        assertThrows(ShortCodeExhaustedException.class,
+                () -> service.createLink("https://b.com", userId, 5, Duration.ofHours(24)));
+        assertEquals(1, service.findByUser(userId).size());
+    }
+}
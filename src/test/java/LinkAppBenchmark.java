@@ -0,0 +1,70 @@
+import service.UserService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Сравнение интерактивного цикла LinkApp и пакетного режима на одинаковом наборе команд.
+ * Лежит в пакете по умолчанию, потому что там же LinkApp.
+ * Запуск: java -cp build/classes/java/main:build/classes/java/test:build/resources/main LinkAppBenchmark [команд]
+ */
+public class LinkAppBenchmark {
+    private static UserService newUserService() {
+        // без квоты, чтобы все create доходили до LinkService
+        return new UserService(1, Duration.ofHours(1), Integer.MAX_VALUE);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+        StringBuilder interactive = new StringBuilder();
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < operations; i++) {
+            String url = "https://example.com/" + i;
+            interactive.append("1\n").append(url).append("\n5\n");
+            interactive.append("3\nmissing").append(i).append('\n');
+            batch.append("create ").append(url).append(" 5\n");
+            batch.append("open missing").append(i).append('\n');
+        }
+        interactive.append("6\n");
+
+        // прогрев
+        runInteractive(interactive.toString());
+        runBatch(batch.toString());
+
+        long interactiveNanos = runInteractive(interactive.toString());
+        long batchNanos = runBatch(batch.toString());
+
+        int commands = operations * 2;
+        System.out.printf("%-12s %10s %12s %12s%n", "mode", "commands", "total ms", "us/command");
+        print("interactive", commands, interactiveNanos);
+        print("batch", commands, batchNanos);
+        System.out.printf("speedup: %.1fx%n", (double) interactiveNanos / batchNanos);
+    }
+
+    private static long runInteractive(String script) {
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        System.setIn(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)));
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long start = System.nanoTime();
+            new LinkApp(newUserService()).run();
+            return System.nanoTime() - start;
+        } finally {
+            System.setIn(originalIn);
+            System.setOut(originalOut);
+        }
+    }
+
+    private static long runBatch(String script) throws IOException {
+        long start = System.nanoTime();
+        new LinkApp(newUserService()).runBatch(new StringReader(script), new BufferedWriter(Writer.nullWriter(), 1 << 16));
+        return System.nanoTime() - start;
+    }
+
+    private static void print(String mode, int commands, long nanos) {
+        System.out.printf("%-12s %10d %12.1f %12.2f%n", mode, commands, nanos / 1e6, nanos / 1e3 / commands);
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import service.LinkService;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -156,4 +157,33 @@ public class LinkAppTest {
         assertNotNull(found);
         assertEquals(link.getShortUrl(), found.getShortUrl());
     }
+
+    // Конкурентные переходы не превышают лимит и не теряют клики
+    @Test
+    void testConcurrentGetLink() throws InterruptedException {
+        Link link = linkService.createLink("https://example.com", userId, 1000, Duration.ofHours(24));
+        int[] opened = new int[8];
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (linkService.getLink(link.getShortUrl()).isPresent()) {
+                        opened[thread]++;
+                    }
+                }
+            });
+            threads.add(worker);
+            worker.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int total = 0;
+        for (int count : opened) {
+            total += count;
+        }
+        assertEquals(1000, link.getUsedClicks());
+        assertEquals(1000, total);
+    }
 }
@@ -0,0 +1,255 @@
+import models.Link;
+import models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.LinkService;
+import service.UrlShortenerService;
+import service.UserService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkBatchRunnerTest {
+    private UserService userService;
+    private LinkService linkService;
+    private UUID userId;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService();
+        linkService = new LinkService(userService);
+        User user = userService.register();
+        userId = user.getId();
+        token = user.getToken();
+    }
+
+    private String[] run(String script, int batchSize) throws IOException {
+        StringWriter out = new StringWriter();
+        new LinkBatchRunner(linkService, userService, token, batchSize, Duration.ofHours(1))
+                .run(new StringReader(script), out);
+        return out.toString().split("\n");
+    }
+
+    // Создание, переход и список ссылок
+    @Test
+    void testCreateOpenList() throws IOException {
+        String[] lines = run("create https://example.com 1\n"
+                + "\n"
+                + "# комментарий\n"
+                + "list\n", 1);
+        String shortUrl = linkService.findByUser(userId).get(0).getShortUrl();
+        assertEquals("1\tOK\tcreate\t" + shortUrl, lines[0]);
+        assertEquals("4\tOK\tlist\t1", lines[1]);
+        assertEquals("4\tLINK\t" + shortUrl + "\thttps://example.com\t0\t1\tno", lines[2]);
+
+        lines = run("open " + shortUrl + "\nopen " + shortUrl + "\nopen missing\n", 2);
+        assertEquals("1\tOK\topen\thttps://example.com", lines[0]);
+        assertEquals("2\tERR\topen\tlimit_reached", lines[1]);
+        assertEquals("3\tERR\topen\tnot_found", lines[2]);
+    }
+
+    // Редактирование и удаление
+    @Test
+    void testEditDelete() throws IOException {
+        Link link = linkService.createLink("https://example.com", userId, 5, Duration.ofHours(24));
+        Link foreign = linkService.createLink("https://example.com", UUID.randomUUID(), 5, Duration.ofHours(24));
+        String[] lines = run("edit clicks " + link.getShortUrl() + " 10\n"
+                + "edit ttl " + link.getShortUrl() + " 48\n"
+                + "delete " + foreign.getShortUrl() + "\n"
+                + "delete " + link.getShortUrl() + "\n", 1024);
+        assertEquals("1\tOK\tedit\t" + link.getShortUrl(), lines[0]);
+        assertEquals("2\tOK\tedit\t" + link.getShortUrl(), lines[1]);
+        assertEquals("3\tERR\tdelete\tnot_found_or_forbidden", lines[2]);
+        assertEquals("4\tOK\tdelete\t" + link.getShortUrl(), lines[3]);
+        assertEquals(10, link.getMaxClicks());
+        assertEquals(Duration.ofHours(48), link.getTtl());
+        assertNull(linkService.findByShort(link.getShortUrl()));
+    }
+
+    // Ошибки разбора не останавливают пакет
+    @Test
+    void testInvalidCommands() throws IOException {
+        String[] lines = run("create not-a-url 5\n"
+                + "create https://example.com 0\n"
+                + "create https://example.com\n"
+                + "edit size x 1\n"
+                + "unknown\n"
+                + "create https://example.com 5 24\n", 4);
+        assertEquals("1\tERR\tcreate\tinvalid_url", lines[0]);
+        assertEquals("2\tERR\tcreate\tinvalid_number", lines[1]);
+        assertEquals("3\tERR\tcreate\tbad_arguments", lines[2]);
+        assertEquals("4\tERR\tedit\tbad_arguments", lines[3]);
+        assertEquals("5\tERR\tunknown\tunknown_command", lines[4]);
+        assertTrue(lines[5].startsWith("6\tOK\tcreate\t"));
+    }
+
+    // Автоудаление выполняется по расписанию
+    @Test
+    void testScheduledExpiry() throws Exception {
+        linkService.createLink("https://example.com", userId, 5, Duration.ofMillis(100));
+        Thread.sleep(150);
+        StringWriter out = new StringWriter();
+        new LinkBatchRunner(linkService, userService, token, 1, Duration.ZERO)
+                .run(new StringReader("list\n"), out);
+        assertTrue(linkService.findByUser(userId).isEmpty());
+    }
+
+    // Переход по истекшей ссылке
+    @Test
+    void testOpenExpired() throws Exception {
+        Link link = linkService.createLink("https://example.com", userId, 5, Duration.ofMillis(100));
+        Thread.sleep(150);
+        String[] lines = run("open " + link.getShortUrl() + "\n", 1024);
+        assertEquals("1\tERR\topen\texpired", lines[0]);
+    }
+
+    // Ответ на команду из pipe приходит, не дожидаясь полной пачки
+    @Test
+    void testPipeRepliesPerCommand() throws Exception {
+        PipedOutputStream commands = new PipedOutputStream();
+        PipedInputStream replies = new PipedInputStream();
+        Reader input = new InputStreamReader(new PipedInputStream(commands), StandardCharsets.UTF_8);
+        Writer output = new OutputStreamWriter(new PipedOutputStream(replies), StandardCharsets.UTF_8);
+        BufferedReader replyReader = new BufferedReader(new InputStreamReader(replies, StandardCharsets.UTF_8));
+
+        Thread runner = new Thread(() -> {
+            try {
+                new LinkBatchRunner(linkService, userService, token, 1024, Duration.ofHours(1)).run(input, output);
+                output.close();
+            } catch (IOException ignored) {
+                // проверяется по ответам
+            }
+        });
+        runner.start();
+
+        commands.write("list\n".getBytes(StandardCharsets.UTF_8));
+        commands.flush();
+        assertEquals("1\tOK\tlist\t0", replyReader.readLine());
+        commands.write("open missing\n".getBytes(StandardCharsets.UTF_8));
+        commands.flush();
+        assertEquals("2\tERR\topen\tnot_found", replyReader.readLine());
+
+        commands.close();
+        runner.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(runner.isAlive());
+    }
+
+    // Сбой разбора не вешает выполнение и доходит до вызывающего
+    @Test
+    void testParserFailure() {
+        Reader broken = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                throw new IllegalStateException("broken input");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        LinkBatchRunner runner = new LinkBatchRunner(linkService, userService, token, 16, Duration.ofHours(1));
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> runner.run(broken, new StringWriter()));
+        assertEquals("broken input", e.getMessage());
+    }
+
+    // Сбой генерации кода дает строку ERR, а не обрывает пакет
+    @Test
+    void testGenerationFailure() throws IOException {
+        LinkService failing = new LinkService(new UserService(), new UrlShortenerService() {
+            @Override
+            public String generateShortUrl(String originalUrl, UUID userId, int attempt) {
+                return "fixed";
+            }
+        });
+        failing.createLink("https://taken.com", UUID.randomUUID(), 5, Duration.ofHours(24));
+        StringWriter out = new StringWriter();
+        new LinkBatchRunner(failing, userService, token, 16, Duration.ofHours(1))
+                .run(new StringReader("create https://example.com 5\nlist\n"), out);
+        String[] lines = out.toString().split("\n");
+        assertEquals("1\tERR\tcreate\tgeneration_failed", lines[0]);
+        assertEquals("2\tOK\tlist\t0", lines[1]);
+    }
+
+    // Пользователь определяется по токену сессии, register и login переключают сессию
+    @Test
+    void testSessions() throws IOException {
+        User other = userService.register();
+        linkService.createLink("https://other.com", other.getId(), 5, Duration.ofHours(24));
+
+        String[] lines = run("list\n"
+                + "login " + other.getToken() + "\n"
+                + "list\n"
+                + "login unknown\n"
+                + "register\n"
+                + "list\n", 1024);
+        assertEquals("1\tOK\tlist\t0", lines[0]);
+        assertEquals("2\tOK\tlogin\t" + other.getId(), lines[1]);
+        assertEquals("3\tOK\tlist\t1", lines[2]);
+        assertEquals("4\tERR\tlogin\tno_session", lines[4]);
+        String[] registered = lines[5].split("\t");
+        assertEquals("register", registered[2]);
+        assertEquals(registered[3], userService.findByToken(registered[4]).get().getId().toString());
+        assertEquals("6\tOK\tlist\t0", lines[6]);
+    }
+
+    // Закрытая сессия: команды с пользователем отклоняются
+    @Test
+    void testNoSession() throws IOException {
+        userService.logout(token);
+        String[] lines = run("create https://example.com 5\nopen missing\n", 1024);
+        assertEquals("1\tERR\tcreate\tno_session", lines[0]);
+        assertEquals("2\tERR\topen\tnot_found", lines[1]);
+    }
+
+    // Сбой вывода: поток разбора останавливается, а не висит на полной очереди
+    @Test
+    void testOutputFailureStopsParser() {
+        Writer broken = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("stdout closed");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            script.append("list\n");
+        }
+        LinkBatchRunner runner = new LinkBatchRunner(linkService, userService, token, 1, Duration.ofHours(1));
+        IOException e = assertThrows(IOException.class,
+                () -> runner.run(new StringReader(script.toString()), broken));
+        assertEquals("stdout closed", e.getMessage());
+
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse(thread.getName().equals("batch-parser") && thread.isAlive());
+        }
+    }
+
+    // Ошибка в сервисе не маскируется под ответ протокола
+    @Test
+    void testServiceBugPropagates() {
+        LinkService buggy = new LinkService(userService, new UrlShortenerService() {
+            @Override
+            public String generateShortUrl(String originalUrl, UUID userId, int attempt) {
+                throw new NullPointerException("bug");
+            }
+        });
+        LinkBatchRunner runner = new LinkBatchRunner(buggy, userService, token, 16, Duration.ofHours(1));
+        assertThrows(NullPointerException.class,
+                () -> runner.run(new StringReader("create https://example.com 5\n"), new StringWriter()));
+    }
+}
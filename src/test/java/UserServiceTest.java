@@ -0,0 +1,196 @@
+import models.Link;
+import models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.LinkService;
+import service.QuotaExceededException;
+import service.UserService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserServiceTest {
+    private UserService userService;
+    private LinkService linkService;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(3, Duration.ofMillis(200), 2);
+        linkService = new LinkService(userService);
+    }
+
+    // Регистрация и поиск по токену
+    @Test
+    void testRegisterAndFindByToken() {
+        User user1 = userService.register();
+        User user2 = userService.register();
+        assertNotEquals(user1.getToken(), user2.getToken());
+        assertEquals(user1, userService.findByToken(user1.getToken()).get());
+        assertEquals(user2, userService.findById(user2.getId()).get());
+        assertTrue(userService.findByToken("unknown").isEmpty());
+    }
+
+    // Счетчик ссылок и квота
+    @Test
+    void testLinkQuota() {
+        User user = userService.register();
+        linkService.createLink("https://a.com", user.getId(), 5, Duration.ofHours(24));
+        Link link = linkService.createLink("https://b.com", user.getId(), 5, Duration.ofHours(24));
+        assertEquals(2, user.getLinkCount());
+        assertThrows(QuotaExceededException.class,
+                () -> linkService.createLink("https://c.com", user.getId(), 5, Duration.ofHours(24)));
+
+        linkService.delete(link.getShortUrl());
+        assertEquals(1, user.getLinkCount());
+        linkService.createLink("https://c.com", user.getId(), 5, Duration.ofHours(24));
+        assertEquals(2, user.getLinkCount());
+    }
+
+    // Повторное создание той же ссылки не расходует квоту
+    @Test
+    void testRecreateSameLink() {
+        User user = userService.register();
+        linkService.createLink("https://a.com", user.getId(), 5, Duration.ofHours(24));
+        linkService.createLink("https://a.com", user.getId(), 5, Duration.ofHours(24));
+        assertEquals(1, user.getLinkCount());
+    }
+
+    // Пересоздание существующей ссылки при исчерпанной квоте
+    @Test
+    void testRecreateSameLinkAtQuota() {
+        User user = userService.register();
+        Link link = linkService.createLink("https://a.com", user.getId(), 5, Duration.ofHours(24));
+        linkService.createLink("https://b.com", user.getId(), 5, Duration.ofHours(24));
+        Link again = linkService.createLink("https://a.com", user.getId(), 10, Duration.ofHours(24));
+        assertEquals(link.getShortUrl(), again.getShortUrl());
+        assertEquals(10, linkService.findByShort(link.getShortUrl()).getMaxClicks());
+        assertEquals(2, user.getLinkCount());
+    }
+
+    // save учитывает квоту, удаление после save не ломает счетчик
+    @Test
+    void testSaveCountsQuota() {
+        User user = userService.register();
+        linkService.save(new Link("https://a.com", "code1", user.getId(), 5, Duration.ofHours(24)));
+        linkService.save(new Link("https://b.com", "code2", user.getId(), 5, Duration.ofHours(24)));
+        assertEquals(2, user.getLinkCount());
+        assertThrows(QuotaExceededException.class,
+                () -> linkService.save(new Link("https://c.com", "code3", user.getId(), 5, Duration.ofHours(24))));
+
+        linkService.delete("code1");
+        assertEquals(1, user.getLinkCount());
+    }
+
+    // Освобождение без захвата — ошибка, а не тихое обнуление
+    @Test
+    void testUnbalancedRelease() {
+        User user = userService.register();
+        assertThrows(IllegalStateException.class, () -> userService.releaseLink(user.getId()));
+        assertThrows(IllegalStateException.class, () -> userService.releaseLink(UUID.randomUUID()));
+    }
+
+    // Вытеснение неактивных сессий
+    @Test
+    void testEvictIdle() throws InterruptedException {
+        User user = userService.register();
+        Thread.sleep(250);
+        assertEquals(1, userService.evictIdle());
+        assertEquals(0, userService.size());
+        assertTrue(userService.findByToken(user.getToken()).isEmpty());
+    }
+
+    // Ограничение числа сессий
+    @Test
+    void testMaxSessions() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            userService.register();
+        }
+        assertThrows(IllegalStateException.class, () -> userService.register());
+
+        Thread.sleep(250);
+        Optional<User> user = Optional.of(userService.register());
+        assertEquals(1, userService.size());
+        assertTrue(userService.findByToken(user.get().getToken()).isPresent());
+    }
+
+    // Конкурентное создание не превышает квоту
+    @Test
+    void testConcurrentAcquire() throws InterruptedException {
+        UserService service = new UserService(10, Duration.ofMinutes(1), 1000);
+        User user = service.register();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    service.acquireLink(user.getId());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, user.getLinkCount());
+    }
+
+    // Квота действует и после вытеснения сессии, и для владельца без сессии
+    @Test
+    void testQuotaWithoutSession() throws InterruptedException {
+        User user = userService.register();
+        linkService.createLink("https://a.com", user.getId(), 5, Duration.ofHours(24));
+        Thread.sleep(250);
+        userService.evictIdle();
+        assertTrue(userService.findById(user.getId()).isEmpty());
+
+        linkService.createLink("https://b.com", user.getId(), 5, Duration.ofHours(24));
+        assertThrows(QuotaExceededException.class,
+                () -> linkService.createLink("https://c.com", user.getId(), 5, Duration.ofHours(24)));
+
+        UUID stranger = UUID.randomUUID();
+        linkService.createLink("https://a.com", stranger, 5, Duration.ofHours(24));
+        linkService.createLink("https://b.com", stranger, 5, Duration.ofHours(24));
+        assertThrows(QuotaExceededException.class,
+                () -> linkService.createLink("https://c.com", stranger, 5, Duration.ofHours(24)));
+    }
+
+    // Токен не попадает в toString
+    @Test
+    void testToStringHidesToken() {
+        User user = userService.register();
+        assertFalse(user.toString().contains(user.getToken()));
+    }
+
+    // Конкурентные создание и удаление: счетчик совпадает с реальными ссылками
+    @Test
+    void testConcurrentCreateDelete() throws InterruptedException {
+        UserService service = new UserService(10, Duration.ofMinutes(1), 100_000);
+        LinkService links = new LinkService(service);
+        User user = service.register();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    // пересекающиеся URL между потоками дают пересоздание одной и той же ссылки
+                    Link link = links.createLink("https://example.com/" + (i % 200), user.getId(), 5,
+                            Duration.ofHours(24));
+                    if ((i + thread) % 3 == 0) {
+                        links.delete(link.getShortUrl());
+                    }
+                }
+            });
+            threads.add(worker);
+            worker.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(links.findByUser(user.getId()).size(), user.getLinkCount());
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import models.User;
+import service.UserService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный замер реестра сессий: стоимость поиска по токену при конкурентном доступе.
+ * Запуск: java -cp build/classes/java/main:build/classes/java/test:build/resources/main benchmark.UserServiceBenchmark [users]
+ */
+public class UserServiceBenchmark {
+    private static final long MEASURE_MILLIS = 2000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        UserService service = new UserService(users, Duration.ofMinutes(30), 1000);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        String[] tokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            tokens[i] = service.register().getToken();
+        }
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("Пользователей: %d, память: ~%d байт на сессию%n",
+                users, (heapAfter - heapBefore) / users);
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-14s %-8s %14s %10s%n", "scenario", "threads", "ops/s", "ns/op");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run("lookup-random", threads, service, tokens, false, false);
+            run("lookup-hot", threads, service, tokens, true, false);
+            run("quota-random", threads, service, tokens, false, true);
+            run("quota-hot", threads, service, tokens, true, true);
+        }
+    }
+
+    /**
+     * lookup — только поиск по токену; quota — поиск плюс занятие и освобождение места в квоте.
+     * random — случайные токены, hot — все потоки работают с одной сессией
+     */
+    private static void run(String scenario, int threads, UserService service, String[] tokens,
+                            boolean hot, boolean quota) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        long deadline = System.nanoTime() + MEASURE_MILLIS * 1_000_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1000; i++) {
+                        String token = hot ? tokens[0] : tokens[random.nextInt(tokens.length)];
+                        User user = service.findByToken(token).orElseThrow();
+                        if (quota) {
+                            service.acquireLink(user.getId());
+                            service.releaseLink(user.getId());
+                        }
+                    }
+                    local += 1000;
+                }
+                ops.add(local);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double opsPerSecond = ops.sum() * 1000.0 / MEASURE_MILLIS;
+        System.out.printf("%-14s %-8d %14.0f %10.1f%n", scenario, threads, opsPerSecond,
+                threads * 1_000_000_000.0 / opsPerSecond);
+    }
+}